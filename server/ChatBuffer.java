@@ -0,0 +1,99 @@
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * Per-room chat buffer. CHAT lines are queued here instead of being broadcast
+ * one by one, and the server drains the queue once per tick so every client
+ * gets a single multi-message frame.
+ *
+ * The queue is bounded; when it is full the drop policy decides which line is
+ * lost. For very large rooms, sampling keeps only 1 in N messages.
+ */
+public class ChatBuffer {
+    public enum DropPolicy {
+        DROP_OLDEST, // keep the most recent chat (default)
+        DROP_NEWEST  // reject new lines until the next flush
+    }
+
+    private final Deque<String> pending = new ArrayDeque<>();
+    private final int capacity;
+    private final DropPolicy dropPolicy;
+    private final int sampleAbove;
+    private final int sampleRate;
+
+    private long received = 0;
+    private long dropped = 0;
+
+    /**
+     * @param capacity    Max lines held between flushes
+     * @param dropPolicy  What to drop when the buffer is full
+     * @param sampleAbove Room size above which sampling starts (0 = never sample)
+     * @param sampleRate  Keep 1 in sampleRate messages while sampling
+     */
+    public ChatBuffer(int capacity, DropPolicy dropPolicy, int sampleAbove, int sampleRate) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Chat buffer capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.dropPolicy = dropPolicy;
+        this.sampleAbove = sampleAbove;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * Queue a chat line for the next flush.
+     *
+     * @param line     Protocol line, e.g. CHAT|Alice|hi
+     * @param roomSize Current number of players, only queried when sampling is enabled
+     * @return true if the line was queued
+     */
+    public synchronized boolean offer(String line, IntSupplier roomSize) {
+        received++;
+
+        if (sampleAbove > 0 && roomSize.getAsInt() > sampleAbove && received % sampleRate != 0) {
+            dropped++;
+            return false;
+        }
+
+        if (pending.size() >= capacity) {
+            dropped++;
+            if (dropPolicy == DropPolicy.DROP_NEWEST) {
+                return false;
+            }
+            pending.pollFirst();
+        }
+
+        pending.addLast(line);
+        return true;
+    }
+
+    /**
+     * Take queued lines, oldest first, up to maxChars in total (at least one
+     * line). Anything left over stays queued for the next flush. Returns an
+     * empty list if nothing is pending.
+     */
+    public synchronized List<String> drain(int maxChars) {
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> batch = new ArrayList<>();
+        int chars = 0;
+        while (!pending.isEmpty()) {
+            int next = pending.peekFirst().length() + 1;
+            if (!batch.isEmpty() && chars + next > maxChars)
+                break;
+            batch.add(pending.pollFirst());
+            chars += next;
+        }
+        return batch;
+    }
+
+    /**
+     * @return Lines dropped (overflow or sampling) since the last call
+     */
+    public synchronized long takeDroppedCount() {
+        long count = dropped;
+        dropped = 0;
+        return count;
+    }
+}
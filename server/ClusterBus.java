@@ -0,0 +1,77 @@
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Node-to-node link used to spread one quiz room over several server processes.
+ *
+ * The primary node owns the authoritative room state (question timing and the
+ * ScoringEngine) and publishes every broadcast once per relay node as a batch.
+ * Relay nodes fan the batch out to their own clients and forward player
+ * commands back to the primary.
+ *
+ * Callbacks must be registered before start(); no frames are read until then.
+ */
+public interface ClusterBus {
+
+    /**
+     * Receives a player command forwarded by a relay node.
+     */
+    @FunctionalInterface
+    interface ForwardListener {
+        /**
+         * @param peerId   Id of the relay link the command arrived on
+         * @param nickname Player nickname on the relay node
+         * @param message  Raw protocol line sent by the player
+         */
+        void onForward(String peerId, String nickname, String message);
+    }
+
+    /**
+     * @return true if this node owns the authoritative room state
+     */
+    boolean isPrimary();
+
+    /**
+     * Start reading from the cluster. Call once, after registering callbacks.
+     */
+    void start();
+
+    /**
+     * Publish a batch of broadcast lines to every relay node (primary only).
+     *
+     * @param messages Protocol lines, delivered to each relay as a single frame
+     */
+    void publish(List<String> messages);
+
+    /**
+     * Forward a player command to the primary node (relay only).
+     *
+     * @param nickname Player nickname on the relay node
+     * @param message  Raw protocol line sent by the player
+     */
+    void forward(String nickname, String message);
+
+    /**
+     * Called on relay nodes with every batch published by the primary.
+     */
+    void setOnBroadcast(Consumer<List<String>> c);
+
+    /**
+     * Called on the primary node for every forwarded command.
+     */
+    void setOnForward(ForwardListener c);
+
+    /**
+     * Called with the peer id when a link is lost: a relay on the primary,
+     * or the primary on a relay.
+     */
+    void setOnPeerLost(Consumer<String> c);
+
+    /**
+     * Called on relay nodes with the peer id when the link to the primary is
+     * re-established after a loss.
+     */
+    void setOnPeerConnected(Consumer<String> c);
+
+    void close();
+}
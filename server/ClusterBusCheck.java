@@ -0,0 +1,138 @@
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Self-check for cluster mode over LocalClusterBus: runs a primary and a relay
+ * server in this JVM and drives them with plain socket clients.
+ *
+ * Run from the project root after building:
+ *   java -cp out/server ClusterBusCheck [questionsFile]
+ *
+ * Exits with status 0 if every check passes, 1 otherwise.
+ */
+public class ClusterBusCheck {
+    private static final int TIMEOUT_MS = 3000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        String questionsFile = args.length >= 1 ? args[0] : "questions.txt";
+
+        LocalClusterBus primaryBus = new LocalClusterBus();
+        LocalClusterBus relayBus = primaryBus.join();
+
+        int primaryPort = freePort();
+        int relayPort = freePort();
+        startServer(new EnhancedQuizServer(primaryPort, questionsFile, primaryBus));
+        startServer(new EnhancedQuizServer(relayPort, questionsFile, relayBus));
+        Thread.sleep(300);
+
+        try (Client alice = new Client(primaryPort);
+             Client bob = new Client(relayPort);
+             Client carol = new Client(relayPort)) {
+
+            alice.send("JOIN|alice");
+            check("primary player joins", alice.waitFor("INFO|alice joined. Players: 1"));
+
+            // JOIN, CHAT and QUIT through the relay reach the primary
+            bob.send("JOIN|bob");
+            check("relay JOIN counted on primary", alice.waitFor("INFO|bob joined. Players: 2"));
+            check("primary broadcast reaches relay", bob.waitFor("INFO|bob joined. Players: 2"));
+
+            bob.send("CHAT|hello from relay");
+            check("relay CHAT reaches primary", alice.waitFor("CHAT|bob|hello from relay"));
+            check("chat batch fans out on relay", bob.waitFor("CHAT|bob|hello from relay"));
+
+            alice.send("CHAT|hello from primary");
+            check("primary CHAT reaches relay", bob.waitFor("CHAT|alice|hello from primary"));
+
+            bob.send("QUIT");
+            check("relay QUIT removes player", alice.waitFor("INFO|bob disconnected"));
+
+            // Losing the relay removes every player that joined through it
+            carol.send("JOIN|carol");
+            check("second relay player joins", alice.waitFor("INFO|carol joined. Players: 2"));
+
+            relayBus.close();
+            check("relay loss removes its players", alice.waitFor("INFO|carol disconnected"));
+            check("relay clients are told about the loss", carol.waitFor("INFO|Lost connection"));
+
+            alice.send("JOIN|alice2");
+            check("re-JOIN is rejected", alice.waitFor("INFO|Already joined as alice"));
+        }
+
+        System.out.println(failures == 0 ? "All cluster checks passed" : failures + " cluster check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "PASS " : "FAIL ") + name);
+        if (!ok) {
+            failures++;
+        }
+    }
+
+    private static void startServer(EnhancedQuizServer server) {
+        Thread t = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("Server stopped: " + e.getMessage());
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // Plain socket client speaking the line protocol
+    private static class Client implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Client(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(TIMEOUT_MS);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        void send(String line) throws IOException {
+            out.write(line + "\n");
+            out.flush();
+        }
+
+        /**
+         * Read lines until one starts with the expected text, or time out.
+         */
+        boolean waitFor(String expected) {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            try {
+                while (System.currentTimeMillis() < deadline) {
+                    String line = in.readLine();
+                    if (line == null)
+                        return false;
+                    if (line.startsWith(expected))
+                        return true;
+                }
+            } catch (IOException e) {
+                // Includes SocketTimeoutException
+                return false;
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
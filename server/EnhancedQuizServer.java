@@ -6,12 +6,33 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Enhanced QuizServer with WebSocket support for web clients
  * Supports both traditional socket clients and WebSocket clients
  */
 public class EnhancedQuizServer {
+    // Per-message logging, enable with -Dquiznet.debug=true
+    private static final boolean DEBUG = Boolean.getBoolean("quiznet.debug");
+
+    // Chat batching, overridable with -Dquiznet.chat.* system properties
+    private static final int CHAT_TICK_MS = intProperty("quiznet.chat.tickMs", 75, 1);
+    private static final int CHAT_MAX_PENDING = intProperty("quiznet.chat.maxPending", 500, 1);
+    private static final int CHAT_SAMPLE_ABOVE = intProperty("quiznet.chat.sampleAbove", 0, 0);
+    private static final int CHAT_SAMPLE_RATE = intProperty("quiznet.chat.sampleRate", 10, 1);
+    private static final int CHAT_MAX_LINE_LENGTH = intProperty("quiznet.chat.maxLineLength", 500, 1);
+    private static final int CHAT_MAX_BATCH_CHARS = intProperty("quiznet.chat.maxBatchChars", 32 * 1024, 1);
+    private static final ChatBuffer.DropPolicy CHAT_DROP_POLICY = dropPolicyProperty(
+            "quiznet.chat.dropPolicy", ChatBuffer.DropPolicy.DROP_OLDEST);
+
+    // Number of leaderboard entries sent to spectators
+    private static final int SPECTATOR_TOP_K = intProperty("quiznet.spectator.topK", 10, 1);
+
+    // Spectators only send QUIT or a close frame, so they get a tiny read buffer
+    private static final int SPECTATOR_READ_BUFFER = 256;
+
     private final int port;
     private Selector selector;
     private ServerSocketChannel serverChannel;
@@ -20,16 +41,38 @@ public class EnhancedQuizServer {
     private final Map<SocketChannel, ClientInfo> clients = new ConcurrentHashMap<>();
     private final Map<String, Integer> scores = new ConcurrentHashMap<>();
     private final Set<SocketChannel> webSocketClients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger localPlayers = new AtomicInteger();
+
+    // Read-only viewers, kept apart from players and served after them
+    private final Map<SocketChannel, Spectator> spectators = new ConcurrentHashMap<>();
+    private final ExecutorService spectatorExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "spectator-fanout");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
 
     private final EnhancedQuestionManager questionManager;
     private final ScoringEngine scoringEngine;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final ChatBuffer chatBuffer = new ChatBuffer(
+            CHAT_MAX_PENDING, CHAT_DROP_POLICY, CHAT_SAMPLE_ABOVE, CHAT_SAMPLE_RATE);
+
+    // Cluster state (null bus = standalone server)
+    private final ClusterBus clusterBus;
+    private final Map<String, Set<String>> remotePlayers = new ConcurrentHashMap<>(); // peerId -> nicknames
+    private volatile boolean clusterLinkLost = false;
 
     // Game state
-    private volatile boolean quizInProgress = false;
+    private final AtomicBoolean quizInProgress = new AtomicBoolean(false);
 
     public EnhancedQuizServer(int port, String questionsFile) throws IOException {
+        this(port, questionsFile, null);
+    }
+
+    public EnhancedQuizServer(int port, String questionsFile, ClusterBus clusterBus) throws IOException {
         this.port = port;
+        this.clusterBus = clusterBus;
         questionManager = new EnhancedQuestionManager(questionsFile);
         scoringEngine = new ScoringEngine(scores);
         init();
@@ -52,10 +95,29 @@ public class EnhancedQuizServer {
         });
 
         questionManager.setOnQuestionEnd((qid) -> {
-            broadcast("RESULT|" + qid + "|" + questionManager.getCorrectOption(qid));
-            broadcastLeaderboard(scoringEngine.getScoresSnapshot());
+            broadcastAll(Arrays.asList(
+                    "RESULT|" + qid + "|" + questionManager.getCorrectOption(qid),
+                    formatLeaderboard(scoringEngine.getScoresSnapshot())));
         });
 
+        // Setup cluster callbacks: relays only fan out, the primary owns the room
+        if (clusterBus != null) {
+            if (clusterBus.isPrimary()) {
+                clusterBus.setOnForward(this::handleForwardedMessage);
+                clusterBus.setOnPeerLost(this::relayLost);
+            } else {
+                clusterBus.setOnBroadcast(this::broadcastLocal);
+                clusterBus.setOnPeerLost(peerId -> primaryLost());
+                clusterBus.setOnPeerConnected(peerId -> primaryRestored());
+            }
+            clusterBus.start();
+        }
+
+        // Chat is flushed once per tick as one frame per client (relays forward chat instead)
+        if (!isRelay()) {
+            scheduler.scheduleAtFixedRate(this::flushChat, CHAT_TICK_MS, CHAT_TICK_MS, TimeUnit.MILLISECONDS);
+        }
+
         // Main event loop
         while (true) {
             selector.select();
@@ -80,6 +142,13 @@ public class EnhancedQuizServer {
     private void handleAccept(SelectionKey key) throws IOException {
         ServerSocketChannel ssc = (ServerSocketChannel) key.channel();
         SocketChannel client = ssc.accept();
+
+        // A relay without its primary has no room to offer
+        if (clusterLinkLost) {
+            client.close();
+            return;
+        }
+
         client.configureBlocking(false);
         client.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(8192));
 
@@ -95,6 +164,7 @@ public class EnhancedQuizServer {
         SocketChannel client = (SocketChannel) key.channel();
         ByteBuffer buffer = (ByteBuffer) key.attachment();
         ClientInfo clientInfo = clients.get(client);
+        Spectator spectator = spectators.get(client);
 
         try {
             int bytes = client.read(buffer);
@@ -112,6 +182,18 @@ public class EnhancedQuizServer {
 
             String dataStr = new String(data, StandardCharsets.UTF_8);
 
+            // Spectators skip handshake detection, only QUIT/close is honoured
+            if (spectator != null) {
+                if (spectator.isWebSocket) {
+                    handleWebSocketFrame(client, data);
+                } else {
+                    for (String line : dataStr.split("\\r?\\n")) {
+                        handleClientMessage(client, line.trim());
+                    }
+                }
+                return;
+            }
+
             // Check for WebSocket handshake
             if (!clientInfo.isWebSocket && !clientInfo.handshakeComplete && dataStr.contains("Upgrade: websocket")) {
                 System.out.println("Received WebSocket handshake request");
@@ -135,7 +217,8 @@ public class EnhancedQuizServer {
 
             // Handle WebSocket frames
             if (clientInfo.isWebSocket) {
-                System.out.println("Handling WebSocket frame, length: " + data.length);
+                if (DEBUG)
+                    System.out.println("Handling WebSocket frame, length: " + data.length);
                 handleWebSocketFrame(client, data);
             } else {
                 // Handle regular socket messages
@@ -265,9 +348,16 @@ public class EnhancedQuizServer {
         if (msg.isEmpty())
             return;
 
-        System.out.println("Received: " + msg);
+        if (DEBUG)
+            System.out.println("Received: " + msg);
         String[] parts = msg.split("\\|");
         String cmd = parts[0];
+
+        if (spectators.containsKey(client)) {
+            handleSpectatorMessage(client, cmd);
+            return;
+        }
+
         ClientInfo clientInfo = clients.get(client);
 
         try {
@@ -277,12 +367,21 @@ public class EnhancedQuizServer {
                         write(client, "INFO|Invalid JOIN\n");
                         break;
                     }
+                    // One nickname per connection, otherwise the old name would linger in scores
+                    if (clientInfo.nickname != null) {
+                        write(client, "INFO|Already joined as " + clientInfo.nickname + "\n");
+                        break;
+                    }
                     String nickname = parts[1].trim();
+                    localPlayers.incrementAndGet();
                     clientInfo.nickname = nickname;
-                    scores.putIfAbsent(nickname, 0);
 
                     write(client, "WELCOME|session|" + clients.size() + "\n");
-                    broadcast("INFO|" + nickname + " joined. Players: " + getPlayerCount() + "\n");
+                    if (isRelay()) {
+                        clusterBus.forward(nickname, msg);
+                    } else {
+                        playerJoined(nickname);
+                    }
                     break;
 
                 case "ANSWER":
@@ -301,60 +400,55 @@ public class EnhancedQuizServer {
                     }
 
                     try {
-                        int answerIndex = Integer.parseInt(optionStr);
-                        int correctIndex = questionManager.getCorrectOption(qid); // fetch correct option
-
-                        // Submit answer only if correct
-                        if (answerIndex == correctIndex) {
-                            scoringEngine.submitAnswer(qid, nick, answerIndex, correctIndex);
-                        }
-
+                        Integer.parseInt(optionStr);
                     } catch (NumberFormatException e) {
                         write(client, "INFO|Answer must be a number (0-3)\n");
+                        break;
+                    }
+
+                    if (isRelay()) {
+                        clusterBus.forward(nick, msg);
+                    } else {
+                        submitAnswer(nick, qid, optionStr);
                     }
                     break;
 
                 case "CHAT":
                     String name = clientInfo.nickname != null ? clientInfo.nickname : "Anonymous";
-                    String text = parts.length >= 2 ? parts[1] : "";
-                    broadcast("CHAT|" + name + "|" + text + "\n");
+                    if (isRelay()) {
+                        // The primary only accepts chat from players that joined through this relay
+                        if (clientInfo.nickname == null) {
+                            write(client, "INFO|You must JOIN first\n");
+                            break;
+                        }
+                        clusterBus.forward(name, msg);
+                    } else {
+                        chat(name, parts);
+                    }
                     break;
 
                 case "START":
-                    if (!quizInProgress) {
-                        quizInProgress = true;
-
-                        // Parse parameters: START|questionCount|category|timePerQuestion
-                        int questionCount = 10; // default
-                        String category = "all"; // default
-                        int timePerQuestion = 15; // default
-
-                        System.out.println("DEBUG: Received START command with " + parts.length + " parts");
-                        for (int i = 0; i < parts.length; i++) {
-                            System.out.println("DEBUG: parts[" + i + "] = " + parts[i]);
-                        }
-
-                        if (parts.length >= 4) {
-                            try {
-                                questionCount = Integer.parseInt(parts[1]);
-                                category = parts[2].toLowerCase();
-                                timePerQuestion = Integer.parseInt(parts[3]);
-                                System.out.println("DEBUG: Parsed - questionCount=" + questionCount + ", category="
-                                        + category + ", time=" + timePerQuestion);
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid START parameters, using defaults");
-                            }
-                        }
+                    if (isRelay()) {
+                        clusterBus.forward(clientInfo.nickname, msg);
+                    } else {
+                        startQuiz(parts);
+                    }
+                    break;
 
-                        final int finalQuestionCount = questionCount;
-                        final String finalCategory = category;
-                        final int finalTime = timePerQuestion;
+                case "SPECTATE":
+                    if (clientInfo.nickname != null) {
+                        write(client, "INFO|Players cannot switch to spectator mode\n");
+                        break;
+                    }
+                    spectators.put(client, new Spectator(clientInfo.isWebSocket));
+                    clients.remove(client);
 
-                        broadcast("INFO|Quiz will start in 3 seconds...\n");
-                        scheduler.schedule(() -> {
-                            questionManager.start(finalTime, finalCategory, "all", finalQuestionCount);
-                        }, 3, TimeUnit.SECONDS);
+                    // Swap the 8 KB player read buffer for a small one
+                    SelectionKey key = client.keyFor(selector);
+                    if (key != null) {
+                        key.attach(ByteBuffer.allocate(SPECTATOR_READ_BUFFER));
                     }
+                    sendToSpectator(client, "INFO|Spectating. Players: " + getPlayerCount() + "\n");
                     break;
 
                 case "QUIT":
@@ -372,23 +466,293 @@ public class EnhancedQuizServer {
         }
     }
 
+    private void handleSpectatorMessage(SocketChannel client, String cmd) {
+        if (cmd.equals("QUIT")) {
+            disconnectClient(client);
+            return;
+        }
+
+        sendToSpectator(client, "INFO|Spectators are read-only\n");
+    }
+
+    /**
+     * Queue a reply to one spectator on the fan-out thread, the only thread
+     * that writes to spectator channels.
+     */
+    private void sendToSpectator(SocketChannel client, String msg) {
+        spectatorExecutor.execute(() -> {
+            Spectator spectator = spectators.get(client);
+            if (spectator != null) {
+                writeSpectatorFrame(client, spectator.isWebSocket ? encodeWebSocketFrame(msg)
+                        : ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)));
+            }
+        });
+    }
+
+    private void writeSpectatorFrame(SocketChannel client, ByteBuffer buffer) {
+        try {
+            writeWholeFrame(client, buffer);
+        } catch (IOException e) {
+            disconnectClient(client);
+        }
+    }
+
+    /**
+     * Handle a player command forwarded by a relay node (primary only).
+     * Mirrors handleClientMessage, minus everything tied to a local channel.
+     * ANSWER, CHAT and QUIT are ignored unless the nickname joined through the
+     * same relay, so one relay cannot act for players it does not hold.
+     */
+    private void handleForwardedMessage(String peerId, String nickname, String msg) {
+        String[] parts = msg.split("\\|");
+        Set<String> peerPlayers = remotePlayers.computeIfAbsent(peerId, k -> ConcurrentHashMap.newKeySet());
+
+        switch (parts[0]) {
+            case "JOIN":
+                if (!nickname.isEmpty() && peerPlayers.add(nickname)) {
+                    playerJoined(nickname);
+                }
+                break;
+
+            case "ANSWER":
+                if (parts.length >= 3 && peerPlayers.contains(nickname)) {
+                    submitAnswer(nickname, parts[1].trim(), parts[2].trim());
+                }
+                break;
+
+            case "CHAT":
+                if (peerPlayers.contains(nickname)) {
+                    chat(nickname, parts);
+                }
+                break;
+
+            case "START":
+                startQuiz(parts);
+                break;
+
+            case "QUIT":
+                if (peerPlayers.remove(nickname)) {
+                    playerLeft(nickname);
+                }
+                break;
+        }
+    }
+
+    /**
+     * A relay link dropped (primary only): everyone who joined through it leaves.
+     */
+    private void relayLost(String peerId) {
+        Set<String> peerPlayers = remotePlayers.remove(peerId);
+        System.out.println("Cluster relay " + peerId + " lost, removing "
+                + (peerPlayers != null ? peerPlayers.size() : 0) + " players");
+
+        if (peerPlayers != null) {
+            for (String nickname : peerPlayers) {
+                playerLeft(nickname);
+            }
+        }
+    }
+
+    /**
+     * The link to the primary dropped (relay only): tell local clients and
+     * disconnect them, since nothing they send can reach the room any more.
+     * New connections are refused until the bus reconnects.
+     */
+    private void primaryLost() {
+        clusterLinkLost = true;
+        System.err.println("Cluster link to primary lost, disconnecting local clients until it is back");
+
+        broadcastLocal(Collections.singletonList(
+                "INFO|Lost connection to the quiz host. This server is reconnecting, please rejoin in a moment."));
+        for (SocketChannel client : clients.keySet()) {
+            disconnectClient(client);
+        }
+        for (SocketChannel client : spectators.keySet()) {
+            disconnectClient(client);
+        }
+    }
+
+    private void primaryRestored() {
+        if (clusterLinkLost) {
+            clusterLinkLost = false;
+            System.out.println("Cluster link to primary restored, accepting clients again");
+        }
+    }
+
+    private void playerJoined(String nickname) {
+        scores.putIfAbsent(nickname, 0);
+        broadcast("INFO|" + nickname + " joined. Players: " + getPlayerCount() + "\n");
+    }
+
+    private void playerLeft(String nickname) {
+        scores.remove(nickname);
+        broadcast("INFO|" + nickname + " disconnected\n");
+    }
+
+    private void submitAnswer(String nick, String qid, String optionStr) {
+        try {
+            int answerIndex = Integer.parseInt(optionStr);
+            int correctIndex = questionManager.getCorrectOption(qid); // fetch correct option
+
+            // Submit answer only if correct
+            if (answerIndex == correctIndex) {
+                scoringEngine.submitAnswer(qid, nick, answerIndex, correctIndex);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid answer from " + nick + ": " + optionStr);
+        }
+    }
+
+    private void chat(String name, String[] parts) {
+        String text = parts.length >= 2 ? parts[1] : "";
+        if (text.length() > CHAT_MAX_LINE_LENGTH) {
+            text = text.substring(0, CHAT_MAX_LINE_LENGTH);
+        }
+        chatBuffer.offer("CHAT|" + name + "|" + text, this::getPlayerCount);
+    }
+
+    private void flushChat() {
+        try {
+            List<String> batch = chatBuffer.drain(CHAT_MAX_BATCH_CHARS);
+            if (!batch.isEmpty()) {
+                broadcastAll(batch);
+            }
+
+            long dropped = chatBuffer.takeDroppedCount();
+            if (dropped > 0) {
+                System.out.println("Chat overload: dropped " + dropped + " messages");
+            }
+        } catch (Exception e) {
+            // Never let an error cancel the periodic flush
+            System.err.println("Error flushing chat: " + e.getMessage());
+        }
+    }
+
+    private void startQuiz(String[] parts) {
+        if (!quizInProgress.compareAndSet(false, true))
+            return;
+
+        // Parse parameters: START|questionCount|category|timePerQuestion
+        int questionCount = 10; // default
+        String category = "all"; // default
+        int timePerQuestion = 15; // default
+
+        if (DEBUG) {
+            System.out.println("DEBUG: Received START command with " + parts.length + " parts");
+            for (int i = 0; i < parts.length; i++) {
+                System.out.println("DEBUG: parts[" + i + "] = " + parts[i]);
+            }
+        }
+
+        if (parts.length >= 4) {
+            try {
+                questionCount = Integer.parseInt(parts[1]);
+                category = parts[2].toLowerCase();
+                timePerQuestion = Integer.parseInt(parts[3]);
+                if (DEBUG)
+                    System.out.println("DEBUG: Parsed - questionCount=" + questionCount + ", category="
+                            + category + ", time=" + timePerQuestion);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid START parameters, using defaults");
+            }
+        }
+
+        final int finalQuestionCount = questionCount;
+        final String finalCategory = category;
+        final int finalTime = timePerQuestion;
+
+        broadcast("INFO|Quiz will start in 3 seconds...\n");
+        scheduler.schedule(() -> {
+            questionManager.start(finalTime, finalCategory, "all", finalQuestionCount);
+        }, 3, TimeUnit.SECONDS);
+    }
+
     private void broadcast(String message) {
+        broadcastAll(Collections.singletonList(message));
+    }
+
+    /**
+     * Broadcast several lines as one frame per client. On a cluster primary the
+     * batch is also published once to each relay node, which fans it out locally.
+     */
+    private void broadcastAll(List<String> messages) {
+        if (clusterBus != null && clusterBus.isPrimary()) {
+            clusterBus.publish(messages);
+        }
+        broadcastLocal(messages);
+    }
+
+    private void broadcastLocal(List<String> messages) {
+        StringBuilder sb = new StringBuilder();
+        for (String message : messages) {
+            sb.append(message).append("\n");
+        }
+        String frame = sb.toString();
+
+        // Encode once per transport and share the bytes across players
+        ByteBuffer wsFrame = encodeWebSocketFrame(frame);
+        ByteBuffer rawFrame = ByteBuffer.wrap(frame.getBytes(StandardCharsets.UTF_8));
+
         for (Map.Entry<SocketChannel, ClientInfo> entry : clients.entrySet()) {
+            ByteBuffer buffer = entry.getValue().isWebSocket ? wsFrame.duplicate() : rawFrame.duplicate();
             try {
-                write(entry.getKey(), message + "\n");
+                writeWholeFrame(entry.getKey(), buffer);
             } catch (IOException e) {
                 disconnectClient(entry.getKey());
             }
         }
+
+        broadcastToSpectators(messages);
+    }
+
+    /**
+     * Queue the spectator subset of a broadcast (QUESTION, RESULT, top-K
+     * LEADERBOARD) on the low-priority fan-out thread, so players are always
+     * written first and never wait on viewers.
+     */
+    private void broadcastToSpectators(List<String> messages) {
+        if (spectators.isEmpty())
+            return;
+
+        StringBuilder sb = new StringBuilder();
+        for (String message : messages) {
+            if (message.startsWith("QUESTION|") || message.startsWith("RESULT|")) {
+                sb.append(message).append("\n");
+            } else if (message.startsWith("LEADERBOARD|")) {
+                sb.append(topLeaderboard(message, SPECTATOR_TOP_K)).append("\n");
+            }
+        }
+        if (sb.length() == 0)
+            return;
+
+        String frame = sb.toString();
+        spectatorExecutor.execute(() -> {
+            // Encode once per transport and share the bytes across spectators
+            ByteBuffer wsFrame = encodeWebSocketFrame(frame);
+            ByteBuffer rawFrame = ByteBuffer.wrap(frame.getBytes(StandardCharsets.UTF_8));
+
+            for (Map.Entry<SocketChannel, Spectator> entry : spectators.entrySet()) {
+                ByteBuffer buffer = entry.getValue().isWebSocket ? wsFrame.duplicate() : rawFrame.duplicate();
+                writeSpectatorFrame(entry.getKey(), buffer);
+            }
+        });
+    }
+
+    private String topLeaderboard(String leaderboardLine, int k) {
+        int pos = leaderboardLine.indexOf('|') + 1;
+        for (int i = 0; i < k && pos > 0; i++) {
+            pos = leaderboardLine.indexOf(';', pos) + 1;
+        }
+        return pos > 0 ? leaderboardLine.substring(0, pos) : leaderboardLine;
     }
 
-    private void broadcastLeaderboard(Map<String, Integer> leaderboard) {
+    private String formatLeaderboard(Map<String, Integer> leaderboard) {
         StringBuilder sb = new StringBuilder();
         leaderboard.entrySet().stream()
                 .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
                 .forEach(e -> sb.append(e.getKey()).append(",").append(e.getValue()).append(";"));
 
-        broadcast("LEADERBOARD|" + sb.toString());
+        return "LEADERBOARD|" + sb.toString();
     }
 
     private void write(SocketChannel client, String msg) throws IOException {
@@ -396,36 +760,61 @@ public class EnhancedQuizServer {
 
         if (clientInfo != null && clientInfo.isWebSocket) {
             // Send as WebSocket frame
-            System.out.println("Sending WebSocket frame: " + msg);
-            byte[] payload = msg.getBytes(StandardCharsets.UTF_8);
-            ByteBuffer buffer = ByteBuffer.allocate(payload.length + 10);
-
-            // FIN + text frame
-            buffer.put((byte) 0x81);
-
-            // Payload length
-            if (payload.length <= 125) {
-                buffer.put((byte) payload.length);
-            } else if (payload.length <= 65535) {
-                buffer.put((byte) 126);
-                buffer.put((byte) (payload.length >> 8));
-                buffer.put((byte) payload.length);
-            }
-
-            buffer.put(payload);
-            buffer.flip();
-            int written = client.write(buffer);
-            System.out.println("Wrote " + written + " bytes to WebSocket client");
+            if (DEBUG)
+                System.out.println("Sending WebSocket frame: " + msg);
+            writeWholeFrame(client, encodeWebSocketFrame(msg));
         } else {
             // Send as regular socket message
-            System.out.println("Sending regular socket message: " + msg);
-            ByteBuffer buffer = ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8));
-            client.write(buffer);
+            if (DEBUG)
+                System.out.println("Sending regular socket message: " + msg);
+            writeWholeFrame(client, ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)));
         }
     }
 
+    /**
+     * Write a whole frame or drop the connection. A partial write would leave
+     * the rest of the stream misaligned (a WebSocket client would read the next
+     * header as payload), so a client whose send buffer cannot take the full
+     * frame is disconnected instead.
+     */
+    private void writeWholeFrame(SocketChannel client, ByteBuffer buffer) throws IOException {
+        int written = client.write(buffer);
+        if (DEBUG)
+            System.out.println("Wrote " + written + " bytes");
+
+        if (buffer.hasRemaining()) {
+            System.out.println("Disconnecting slow client: " + client.getRemoteAddress());
+            disconnectClient(client);
+        }
+    }
+
+    private ByteBuffer encodeWebSocketFrame(String msg) {
+        byte[] payload = msg.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 10);
+
+        // FIN + text frame
+        buffer.put((byte) 0x81);
+
+        // Payload length
+        if (payload.length <= 125) {
+            buffer.put((byte) payload.length);
+        } else if (payload.length <= 65535) {
+            buffer.put((byte) 126);
+            buffer.put((byte) (payload.length >> 8));
+            buffer.put((byte) payload.length);
+        } else {
+            buffer.put((byte) 127);
+            buffer.putLong(payload.length);
+        }
+
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
     private void disconnectClient(SocketChannel client) {
         ClientInfo clientInfo = clients.remove(client);
+        spectators.remove(client);
         webSocketClients.remove(client);
 
         try {
@@ -434,15 +823,27 @@ public class EnhancedQuizServer {
         }
 
         if (clientInfo != null && clientInfo.nickname != null) {
-            scores.remove(clientInfo.nickname);
-            broadcast("INFO|" + clientInfo.nickname + " disconnected\n");
+            localPlayers.decrementAndGet();
+            if (isRelay()) {
+                if (!clusterLinkLost) {
+                    clusterBus.forward(clientInfo.nickname, "QUIT");
+                }
+            } else {
+                playerLeft(clientInfo.nickname);
+            }
         }
     }
 
     private int getPlayerCount() {
-        return (int) clients.values().stream()
-                .filter(info -> info.nickname != null)
-                .count();
+        int remote = 0;
+        for (Set<String> peerPlayers : remotePlayers.values()) {
+            remote += peerPlayers.size();
+        }
+        return localPlayers.get() + remote;
+    }
+
+    private boolean isRelay() {
+        return clusterBus != null && !clusterBus.isPrimary();
     }
 
     // Inner class to store client information
@@ -452,6 +853,49 @@ public class EnhancedQuizServer {
         boolean handshakeComplete = false;
     }
 
+    // Minimal per-connection state for read-only spectators
+    private static class Spectator {
+        final boolean isWebSocket;
+
+        Spectator(boolean isWebSocket) {
+            this.isWebSocket = isWebSocket;
+        }
+    }
+
+    /**
+     * Read an int system property, falling back to the default (with an error
+     * message) when it is not a number or is below the minimum.
+     */
+    private static int intProperty(String name, int defaultValue, int min) {
+        String value = System.getProperty(name);
+        if (value == null)
+            return defaultValue;
+
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= min)
+                return parsed;
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("Invalid " + name + ": " + value + " (must be an integer >= " + min
+                + "), using " + defaultValue);
+        return defaultValue;
+    }
+
+    private static ChatBuffer.DropPolicy dropPolicyProperty(String name, ChatBuffer.DropPolicy defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null)
+            return defaultValue;
+
+        try {
+            return ChatBuffer.DropPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid " + name + ": " + value + " (use "
+                    + Arrays.toString(ChatBuffer.DropPolicy.values()) + "), using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     public static void main(String[] args) throws IOException {
         int port = 9000;
         String questionsFile = "questions.txt";
@@ -463,7 +907,25 @@ public class EnhancedQuizServer {
             questionsFile = args[1];
         }
 
-        EnhancedQuizServer server = new EnhancedQuizServer(port, questionsFile);
+        // Optional cluster mode: primary:[<bindAddress>:]<clusterPort> or relay:<host>:<clusterPort>
+        // The primary binds to loopback unless a bind address is given
+        ClusterBus clusterBus = null;
+        if (args.length >= 3) {
+            String[] cluster = args[2].split(":");
+            if (cluster[0].equals("primary") && cluster.length == 2) {
+                clusterBus = TcpClusterBus.primary("127.0.0.1", Integer.parseInt(cluster[1]));
+            } else if (cluster[0].equals("primary") && cluster.length == 3) {
+                clusterBus = TcpClusterBus.primary(cluster[1], Integer.parseInt(cluster[2]));
+            } else if (cluster[0].equals("relay") && cluster.length == 3) {
+                clusterBus = TcpClusterBus.relay(cluster[1], Integer.parseInt(cluster[2]));
+            } else {
+                System.err.println("Invalid cluster spec: " + args[2]
+                        + " (use primary:[<bindAddress>:]<port> or relay:<host>:<port>)");
+                return;
+            }
+        }
+
+        EnhancedQuizServer server = new EnhancedQuizServer(port, questionsFile, clusterBus);
         server.start();
     }
 }
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process ClusterBus that links several servers running in the same JVM.
+ * Useful for tests and local experiments; no sockets or external services.
+ *
+ * Usage:
+ *   LocalClusterBus primary = new LocalClusterBus();
+ *   LocalClusterBus relay = primary.join();
+ *
+ * A relay only receives broadcasts once its start() has been called. Calling
+ * start() again after close() re-attaches it, like a TCP relay reconnecting.
+ */
+public class LocalClusterBus implements ClusterBus {
+    private static final String PRIMARY_PEER_ID = "primary";
+
+    private final LocalClusterBus primary;
+    private final String peerId;
+    private final CopyOnWriteArrayList<LocalClusterBus> relays = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextRelayId = new AtomicInteger();
+
+    private volatile Consumer<List<String>> broadcastCallback;
+    private volatile ForwardListener forwardCallback;
+    private volatile Consumer<String> peerLostCallback;
+    private volatile Consumer<String> peerConnectedCallback;
+
+    public LocalClusterBus() {
+        this(null, PRIMARY_PEER_ID);
+    }
+
+    private LocalClusterBus(LocalClusterBus primary, String peerId) {
+        this.primary = primary;
+        this.peerId = peerId;
+    }
+
+    /**
+     * Create a relay bus attached to this primary.
+     */
+    public LocalClusterBus join() {
+        if (primary != null) {
+            throw new IllegalStateException("Relays can only join a primary bus");
+        }
+        return new LocalClusterBus(this, "relay-" + nextRelayId.incrementAndGet());
+    }
+
+    @Override
+    public boolean isPrimary() {
+        return primary == null;
+    }
+
+    @Override
+    public void start() {
+        if (primary != null && primary.relays.addIfAbsent(this)) {
+            Consumer<String> callback = peerConnectedCallback;
+            if (callback != null) {
+                callback.accept(PRIMARY_PEER_ID);
+            }
+        }
+    }
+
+    @Override
+    public void publish(List<String> messages) {
+        List<String> batch = new ArrayList<>(messages);
+        for (LocalClusterBus relay : relays) {
+            Consumer<List<String>> callback = relay.broadcastCallback;
+            if (callback != null) {
+                callback.accept(batch);
+            }
+        }
+    }
+
+    @Override
+    public void forward(String nickname, String message) {
+        if (primary == null)
+            return;
+
+        ForwardListener callback = primary.forwardCallback;
+        if (primary.relays.contains(this) && callback != null) {
+            callback.onForward(peerId, nickname, message);
+        } else {
+            System.err.println("Cluster link to primary is down, dropped: " + message);
+        }
+    }
+
+    @Override
+    public void setOnBroadcast(Consumer<List<String>> c) {
+        this.broadcastCallback = c;
+    }
+
+    @Override
+    public void setOnForward(ForwardListener c) {
+        this.forwardCallback = c;
+    }
+
+    @Override
+    public void setOnPeerLost(Consumer<String> c) {
+        this.peerLostCallback = c;
+    }
+
+    @Override
+    public void setOnPeerConnected(Consumer<String> c) {
+        this.peerConnectedCallback = c;
+    }
+
+    @Override
+    public void close() {
+        if (primary != null) {
+            if (primary.relays.remove(this)) {
+                notifyPeerLost(primary, peerId);
+                notifyPeerLost(this, PRIMARY_PEER_ID);
+            }
+        } else {
+            for (LocalClusterBus relay : relays) {
+                relay.close();
+            }
+        }
+    }
+
+    private static void notifyPeerLost(LocalClusterBus bus, String lostPeerId) {
+        Consumer<String> callback = bus.peerLostCallback;
+        if (callback != null) {
+            callback.accept(lostPeerId);
+        }
+    }
+}
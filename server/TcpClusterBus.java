@@ -0,0 +1,408 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Default ClusterBus: a plain TCP relay between server JVMs.
+ *
+ * The primary listens on a cluster port and relays connect to it. Frames are
+ * length-prefixed:
+ *   'H' len secret              hello, first frame from a relay
+ *   'B' count (len bytes)*      batch of broadcast lines, primary -> relay
+ *   'F' len nickname len line   forwarded player command, relay -> primary
+ *
+ * A relay is only served after its hello carries the shared secret
+ * (-Dquiznet.cluster.secret, empty by default). The primary binds to loopback
+ * unless another address is given.
+ *
+ * Every peer has its own bounded outbox drained by its own writer thread, so a
+ * relay that stops reading is disconnected once its outbox fills instead of
+ * stalling the other relays, the selector or the question scheduler.
+ *
+ * A relay that loses the primary keeps reconnecting with exponential backoff.
+ */
+public class TcpClusterBus implements ClusterBus {
+    private static final byte HELLO = 'H';
+    private static final byte BATCH = 'B';
+    private static final byte FORWARD = 'F';
+
+    // Upper bounds for values read off the wire
+    private static final int MAX_STRING_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_BATCH_LINES = 100_000;
+
+    // Frames a peer may fall behind before it is dropped
+    private static final int MAX_QUEUED_FRAMES = 256;
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final long RECONNECT_MIN_MS = 1000;
+    private static final long RECONNECT_MAX_MS = 30_000;
+
+    private static final String SECRET = System.getProperty("quiznet.cluster.secret", "");
+
+    private final boolean primary;
+    private final List<Peer> peers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextPeerId = new AtomicInteger();
+
+    // Relay only: where the primary lives
+    private String primaryHost;
+    private int primaryPort;
+
+    private ServerSocket serverSocket;
+    private volatile boolean running = true;
+    private volatile boolean started = false;
+
+    private volatile Consumer<List<String>> broadcastCallback;
+    private volatile ForwardListener forwardCallback;
+    private volatile Consumer<String> peerLostCallback;
+    private volatile Consumer<String> peerConnectedCallback;
+
+    private TcpClusterBus(boolean primary) {
+        this.primary = primary;
+    }
+
+    /**
+     * Bind a primary node to the given address and cluster port.
+     * Relay connections are accepted once start() is called.
+     */
+    public static TcpClusterBus primary(String bindAddress, int clusterPort) throws IOException {
+        TcpClusterBus bus = new TcpClusterBus(true);
+        bus.serverSocket = new ServerSocket(clusterPort, 50, InetAddress.getByName(bindAddress));
+        System.out.println("Cluster primary listening on " + bindAddress + ":" + clusterPort);
+        return bus;
+    }
+
+    /**
+     * Connect a relay node to the primary at host:port.
+     * Broadcasts are read once start() is called.
+     */
+    public static TcpClusterBus relay(String host, int port) throws IOException {
+        TcpClusterBus bus = new TcpClusterBus(false);
+        bus.primaryHost = host;
+        bus.primaryPort = port;
+        bus.connect();
+        return bus;
+    }
+
+    private Peer connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(primaryHost, primaryPort), CONNECT_TIMEOUT_MS);
+        Peer peer = newPeer(socket);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(HELLO);
+        writeString(out, SECRET);
+        peer.outbox.add(bytes.toByteArray());
+
+        peers.add(peer);
+        peer.writer.start();
+        if (started) {
+            startReader(peer);
+        }
+        System.out.println("Cluster relay connected to " + primaryHost + ":" + primaryPort);
+        return peer;
+    }
+
+    @Override
+    public void start() {
+        started = true;
+        if (primary) {
+            daemon("cluster-accept").newThread(this::acceptLoop).start();
+        } else {
+            for (Peer peer : peers) {
+                startReader(peer);
+            }
+        }
+    }
+
+    private void startReader(Peer peer) {
+        daemon("cluster-reader").newThread(() -> readLoop(peer)).start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Peer peer = newPeer(socket);
+                startReader(peer);
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Cluster accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Peer newPeer(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        return new Peer(primary ? "relay-" + nextPeerId.incrementAndGet() : "primary", socket);
+    }
+
+    /**
+     * Relay only: retry the primary with exponential backoff until it answers
+     * or the bus is closed.
+     */
+    private void reconnectLoop() {
+        long delay = RECONNECT_MIN_MS;
+        while (running) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!running)
+                return;
+
+            try {
+                Peer peer = connect();
+                Consumer<String> callback = peerConnectedCallback;
+                if (callback != null) {
+                    callback.accept(peer.id);
+                }
+                return;
+            } catch (IOException e) {
+                System.err.println("Cluster reconnect to " + primaryHost + ":" + primaryPort
+                        + " failed, retrying in " + Math.min(delay * 2, RECONNECT_MAX_MS) + " ms");
+                delay = Math.min(delay * 2, RECONNECT_MAX_MS);
+            }
+        }
+    }
+
+    private void readLoop(Peer peer) {
+        try {
+            if (primary) {
+                if (peer.in.readByte() != HELLO || !MessageDigest.isEqual(
+                        readString(peer.in).getBytes(StandardCharsets.UTF_8),
+                        SECRET.getBytes(StandardCharsets.UTF_8))) {
+                    System.err.println("Cluster peer rejected: " + peer.socket.getRemoteSocketAddress());
+                    peer.socket.close();
+                    return;
+                }
+                peers.add(peer);
+                peer.writer.start();
+                System.out.println("Cluster relay joined from " + peer.socket.getRemoteSocketAddress());
+            }
+
+            while (running) {
+                byte type = peer.in.readByte();
+
+                if (type == BATCH && !primary) {
+                    int count = peer.in.readInt();
+                    if (count < 0 || count > MAX_BATCH_LINES) {
+                        throw new IOException("Invalid cluster batch size: " + count);
+                    }
+                    List<String> batch = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        batch.add(readString(peer.in));
+                    }
+                    Consumer<List<String>> callback = broadcastCallback;
+                    if (callback != null) {
+                        callback.accept(batch);
+                    }
+                } else if (type == FORWARD && primary) {
+                    String nickname = readString(peer.in);
+                    String message = readString(peer.in);
+                    ForwardListener callback = forwardCallback;
+                    if (callback != null) {
+                        callback.onForward(peer.id, nickname, message);
+                    }
+                } else {
+                    throw new IOException("Unexpected cluster frame type: " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Cluster peer " + peer.id + " lost: "
+                        + (e instanceof EOFException ? "connection closed" : e.getMessage()));
+            }
+        } finally {
+            removePeer(peer);
+        }
+    }
+
+    @Override
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    @Override
+    public void publish(List<String> messages) {
+        if (!primary || peers.isEmpty())
+            return;
+
+        byte[] frame;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(BATCH);
+            out.writeInt(messages.size());
+            for (String line : messages) {
+                writeString(out, line);
+            }
+            frame = bytes.toByteArray();
+        } catch (IOException e) {
+            return;
+        }
+
+        // Encode once, queue the same bytes for every relay
+        for (Peer peer : peers) {
+            send(peer, frame);
+        }
+    }
+
+    @Override
+    public void forward(String nickname, String message) {
+        if (primary)
+            return;
+
+        if (peers.isEmpty()) {
+            System.err.println("Cluster link to primary is down, dropped: " + message);
+            return;
+        }
+
+        byte[] frame;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORWARD);
+            writeString(out, nickname);
+            writeString(out, message);
+            frame = bytes.toByteArray();
+        } catch (IOException e) {
+            return;
+        }
+
+        for (Peer peer : peers) {
+            send(peer, frame);
+        }
+    }
+
+    /**
+     * Queue a frame on the peer's outbox. A peer whose outbox is full has
+     * stopped keeping up and is dropped rather than allowed to grow memory.
+     */
+    private void send(Peer peer, byte[] frame) {
+        if (!peer.outbox.offer(frame)) {
+            System.err.println("Cluster peer " + peer.id + " fell behind (" + MAX_QUEUED_FRAMES
+                    + " frames queued), disconnecting");
+            removePeer(peer);
+        }
+    }
+
+    private void writeLoop(Peer peer) {
+        try {
+            while (running) {
+                byte[] frame = peer.outbox.take();
+                peer.out.write(frame);
+                if (peer.outbox.isEmpty()) {
+                    peer.out.flush();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            removePeer(peer);
+        }
+    }
+
+    private void removePeer(Peer peer) {
+        try {
+            peer.socket.close();
+        } catch (IOException ignored) {
+        }
+        peer.writer.interrupt();
+
+        if (peers.remove(peer) && running) {
+            Consumer<String> callback = peerLostCallback;
+            if (callback != null) {
+                callback.accept(peer.id);
+            }
+            if (!primary) {
+                daemon("cluster-reconnect").newThread(this::reconnectLoop).start();
+            }
+        }
+    }
+
+    @Override
+    public void setOnBroadcast(Consumer<List<String>> c) {
+        this.broadcastCallback = c;
+    }
+
+    @Override
+    public void setOnForward(ForwardListener c) {
+        this.forwardCallback = c;
+    }
+
+    @Override
+    public void setOnPeerLost(Consumer<String> c) {
+        this.peerLostCallback = c;
+    }
+
+    @Override
+    public void setOnPeerConnected(Consumer<String> c) {
+        this.peerConnectedCallback = c;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Peer peer : peers) {
+            removePeer(peer);
+        }
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] data = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Invalid cluster string length: " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Connection to another node
+    private class Peer {
+        final String id;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        final BlockingQueue<byte[]> outbox = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        final Thread writer;
+
+        Peer(String id, Socket socket) throws IOException {
+            this.id = id;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.writer = daemon("cluster-writer-" + id).newThread(() -> writeLoop(this));
+        }
+    }
+}